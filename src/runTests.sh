@@ -1,8 +1,33 @@
 #!/bin/sh
 javac -cp ".:../lib/json.jar" unsw/venues/*.java
-for i in 1 2 3
+for i in 1 2 3 5
 do
     java -ea -cp ".:../lib/json.jar" unsw/venues/VenueHireSystem < ../input$i.json > outp
     diff outp ../output$i.json
+    java -ea -cp ".:../lib/json.jar" unsw/venues/VenueHireSystem --async < ../input$i.json > outp
+    diff outp ../output$i.json
+done
+
+# Allocation policies: these pick different rooms from first-fit, including for a change.
+java -ea -cp ".:../lib/json.jar" unsw/venues/VenueHireSystem --policy best-fit < ../input6.json > outp
+diff outp ../output6.json
+java -ea -cp ".:../lib/json.jar" unsw/venues/VenueHireSystem --policy packed < ../input7.json > outp
+diff outp ../output7.json
+
+# Event feed: a batch of one event and a one byte file limit put every event in its own file.
+# Running twice checks that earlier files are never overwritten.
+rm -rf events
+for run in 1 2
+do
+    java -ea -cp ".:../lib/json.jar" unsw/venues/VenueHireSystem --events events --events-batch 1 --events-file-size 1 < input0.json > /dev/null
 done
-rm out
+cat events/events-0.jsonl events/events-1.jsonl events/events-2.jsonl events/events-3.jsonl events/events-4.jsonl events/events-5.jsonl > outp
+diff outp events0.jsonl
+cat events/events-6.jsonl events/events-7.jsonl events/events-8.jsonl events/events-9.jsonl events/events-10.jsonl events/events-11.jsonl > outp
+diff outp events0.jsonl
+if [ -e events/events-12.jsonl ]
+then
+    echo "unexpected event file events-12.jsonl"
+fi
+rm -r events
+rm outp
@@ -0,0 +1,24 @@
+package unsw.venues;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+
+/**
+ * A strategy that decides which rooms of a venue are assigned to a request or change.
+ * Venues are still tried in order of definition; the policy only chooses rooms within a venue.
+ */
+public interface AllocationPolicy {
+    /**
+     * Chooses rooms in a venue that fulfil the request.
+     * @param venue The venue to choose rooms from.
+     * @param start Requested start date.
+     * @param end Requested end date.
+     * @param small Requested number of small rooms.
+     * @param medium Requested number of medium rooms.
+     * @param large Requested number of large rooms.
+     * @param transaction The transaction in progress. Its staged changes must be taken into account.
+     * @return An ArrayList of the chosen rooms in order of definition. Returns null if the venue cannot fulfil the request.
+     */
+    public ArrayList<Room> selectRooms(Venue venue, LocalDate start, LocalDate end, int small, int medium, int large,
+            Transaction transaction);
+}
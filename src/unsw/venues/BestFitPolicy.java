@@ -0,0 +1,62 @@
+package unsw.venues;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * An allocation policy that places a request in the rooms where it leaves the fewest idle days
+ * between it and the neighbouring reservations. Snug gaps are filled first, keeping long free stretches
+ * intact for later requests.
+ */
+public class BestFitPolicy extends RankedAllocationPolicy {
+    // Idle days counted for a side of the request with no neighbouring reservation.
+    private static final long OPEN_GAP = 100000;
+
+    @Override
+    protected long score(Venue venue, Room room, LocalDate start, LocalDate end, Transaction transaction) {
+        long before = OPEN_GAP;
+        long after = OPEN_GAP;
+        // The room is available so every reservation lies entirely before or after the request.
+        for (Reservation reservation : venue.getReservations(room)) {
+            if (transaction == null || !transaction.isCancelled(reservation)) {
+                before = Math.min(before, gapBefore(reservation, start));
+                after = Math.min(after, gapAfter(reservation, end));
+            }
+        }
+        if (transaction != null) {
+            for (Reservation reservation : transaction.getAdded()) {
+                if (Room.containsRoom(reservation.getRooms(), room)) {
+                    before = Math.min(before, gapBefore(reservation, start));
+                    after = Math.min(after, gapAfter(reservation, end));
+                }
+            }
+        }
+        return before + after;
+    }
+
+    /**
+     * Counts the idle days between a reservation and a request that starts after it.
+     * @param reservation A reservation of the room.
+     * @param start Requested start date.
+     * @return The idle days, or OPEN_GAP if the reservation is not before the request.
+     */
+    private static long gapBefore(Reservation reservation, LocalDate start) {
+        if (!reservation.getEnd().isBefore(start)) {
+            return OPEN_GAP;
+        }
+        return ChronoUnit.DAYS.between(reservation.getEnd(), start) - 1;
+    }
+
+    /**
+     * Counts the idle days between a request and a reservation that starts after it.
+     * @param reservation A reservation of the room.
+     * @param end Requested end date.
+     * @return The idle days, or OPEN_GAP if the reservation is not after the request.
+     */
+    private static long gapAfter(Reservation reservation, LocalDate end) {
+        if (!reservation.getStart().isAfter(end)) {
+            return OPEN_GAP;
+        }
+        return ChronoUnit.DAYS.between(end, reservation.getStart()) - 1;
+    }
+}
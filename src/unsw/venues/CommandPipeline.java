@@ -0,0 +1,174 @@
+package unsw.venues;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import org.json.JSONObject;
+
+/**
+ * Runs a venue hire system as three stages on separate threads: decoding input lines into commands,
+ * executing the commands, and writing their output. The stages are connected by bounded queues, so a
+ * stage that falls behind makes the stage before it wait instead of buffering without limit.
+ * Commands are executed one at a time on a single thread, so output order matches input order.
+ */
+public class CommandPipeline {
+    // Markers passed down the queues to signal the end of the stream. Compared by reference.
+    private static final JSONObject END_OF_INPUT = new JSONObject();
+    private static final String END_OF_OUTPUT = new String("end of output");
+
+    private VenueHireSystem system;
+    private ArrayBlockingQueue<JSONObject> commands;
+    private ArrayBlockingQueue<String> outputs;
+    private volatile Throwable failure;
+
+    /**
+     * Constructor method to create a pipeline.
+     * @param system The venue hire system that executes the commands.
+     * @param capacity Maximum number of commands, and of outputs, waiting between two stages.
+     */
+    public CommandPipeline(VenueHireSystem system, int capacity) {
+        this.system = system;
+        this.commands = new ArrayBlockingQueue<JSONObject>(capacity);
+        this.outputs = new ArrayBlockingQueue<String>(capacity);
+    }
+
+    /**
+     * Processes every command from the input and writes the output. Returns once all output is written.
+     * Output is written on the calling thread.
+     * @param in Stream of JSON commands, one per line.
+     * @param out Stream to write the command output to.
+     */
+    public void run(InputStream in, OutputStream out) {
+        Thread decoder = new Thread(() -> decode(in), "pipeline-decoder");
+        Thread executor = new Thread(() -> execute(decoder), "pipeline-executor");
+        // The decoder may be blocked reading input after execution has stopped, so it must not keep the process alive.
+        decoder.setDaemon(true);
+        decoder.start();
+        executor.start();
+        try {
+            write(out);
+        } catch (InterruptedException e) {
+            executor.interrupt();
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            fail(e);
+            // The executor may be blocked waiting for room in the output queue, which will never drain now.
+            executor.interrupt();
+        }
+        try {
+            executor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new RuntimeException(failure);
+        }
+    }
+
+    /**
+     * Decoding stage. Reads lines from the input and parses them into JSONObjects.
+     * The end of input is always passed on, even if decoding fails, so the executor never waits forever.
+     * @param in Stream of JSON commands, one per line.
+     */
+    private void decode(InputStream in) {
+        boolean stopped = false;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().equals("")) {
+                    commands.put(new JSONObject(line));
+                }
+            }
+        } catch (InterruptedException e) {
+            // The executor stopped early so nobody is waiting for more commands.
+            stopped = true;
+        } catch (Throwable e) {
+            // Includes errors such as StackOverflowError from a deeply nested line.
+            fail(e);
+        } finally {
+            if (!stopped) {
+                putEnd(commands, END_OF_INPUT);
+            }
+        }
+    }
+
+    /**
+     * Execution stage. Runs each command in order and passes its output on.
+     * The end of output is always passed on, even if a command fails, so the writer never waits forever.
+     * @param decoder The decoding thread, interrupted if execution stops early.
+     */
+    private void execute(Thread decoder) {
+        try {
+            JSONObject command;
+            while ((command = commands.take()) != END_OF_INPUT) {
+                String output = system.processCommand(command);
+                if (output != null) {
+                    outputs.put(output);
+                }
+            }
+        } catch (InterruptedException e) {
+            // The writer stopped early and nothing more will be written.
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            fail(e);
+            decoder.interrupt();
+        } finally {
+            putEnd(outputs, END_OF_OUTPUT);
+        }
+    }
+
+    /**
+     * Passes an end marker on to the next stage. If this thread has been interrupted, the next stage
+     * has already stopped and the marker is dropped.
+     * @param queue The queue to the next stage.
+     * @param marker The end marker.
+     */
+    private static <T> void putEnd(ArrayBlockingQueue<T> queue, T marker) {
+        try {
+            queue.put(marker);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Output stage. Writes each output on its own line, flushing whenever no more output is waiting.
+     * @param out Stream to write the command output to.
+     * @throws IOException If the output cannot be written.
+     * @throws InterruptedException If the thread is interrupted while waiting for output.
+     */
+    private void write(OutputStream out) throws IOException, InterruptedException {
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        String output;
+        while ((output = outputs.take()) != END_OF_OUTPUT) {
+            writer.write(output);
+            writer.newLine();
+            if (outputs.isEmpty()) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Records the first failure of any stage so it can be rethrown once the pipeline has stopped.
+     * @param e The failure.
+     */
+    private synchronized void fail(Throwable e) {
+        if (failure == null) {
+            failure = e;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package unsw.venues;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A small cache of parsed dates. Commands tend to reuse the same dates so parsing each
+ * ISO-8601 string only once avoids repeated work in LocalDate.parse.
+ */
+public class DateCache {
+    private LinkedHashMap<String, LocalDate> dates;
+
+    /**
+     * Constructor method to create a date cache.
+     * The least recently used date is dropped once the cache holds more than the given number of dates.
+     * @param capacity Maximum number of dates to keep.
+     */
+    public DateCache(final int capacity) {
+        this.dates = new LinkedHashMap<String, LocalDate>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LocalDate> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Parses a date in the format uuuu-MM-dd, reusing a previous result if the same string was parsed before.
+     * @param text The date as a String.
+     * @return The parsed date.
+     */
+    public LocalDate parse(String text) {
+        LocalDate date = dates.get(text);
+        if (date == null) {
+            date = LocalDate.parse(text);
+            dates.put(text, date);
+        }
+        return date;
+    }
+}
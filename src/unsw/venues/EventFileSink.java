@@ -0,0 +1,189 @@
+package unsw.venues;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A listener that writes events to local files, one JSON object per line. Events are written in batches,
+ * once enough events have been collected or once the oldest waiting event reaches a time limit, whichever
+ * comes first. A new file is started once the current one reaches a size limit. Files are named
+ * events-0.jsonl, events-1.jsonl and so on.
+ *
+ * Events reach the sink after their mutation has been committed, so a failure to write them must not stop
+ * commands from being processed. A failed write is reported on standard error and the batch is kept and
+ * retried by the next flush, in a new file so the retried events never follow a partly written line.
+ */
+public class EventFileSink implements ReservationListener {
+    private File directory;
+    private long maxFileBytes;
+    private int batchSize;
+    private StringBuilder batch;
+    private int batched;
+    private int fileIndex;
+    private long fileBytes;
+    private Writer writer;
+    private ScheduledExecutorService flusher;
+    private boolean closed;
+    private boolean failing;
+
+    /**
+     * Constructor method to create a file sink. The directory is created if it does not exist.
+     * @param directory The directory to write event files to.
+     * @param maxFileBytes Size after which a new file is started.
+     * @param batchSize Number of events to collect before writing them out.
+     * @param maxDelayMillis Longest time an event may wait before it is written out.
+     */
+    public EventFileSink(String directory, long maxFileBytes, int batchSize, long maxDelayMillis) {
+        this.directory = new File(directory);
+        this.maxFileBytes = maxFileBytes;
+        this.batchSize = batchSize;
+        this.batch = new StringBuilder();
+        this.batched = 0;
+        this.fileIndex = 0;
+        this.fileBytes = 0;
+        this.writer = null;
+        this.closed = false;
+        this.failing = false;
+        this.directory.mkdirs();
+        // Flush on a background thread so a quiet period never holds back events that were already committed.
+        this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "event-sink-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // A scheduled task that throws is never run again, so the task must not throw.
+        this.flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                report(e);
+            }
+        }, maxDelayMillis, maxDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void onEvent(ReservationEvent event) {
+        batch.append(event.toJSON().toString()).append('\n');
+        batched++;
+        if (batched >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes out all batched events, starting a new file first if the current one is full.
+     * If the write fails, the failure is reported and the events stay batched for the next flush.
+     * @return True if no events are left waiting. Otherwise, false.
+     */
+    public synchronized boolean flush() {
+        if (batched == 0 || closed) {
+            return batched == 0;
+        }
+        try {
+            if (writer == null || fileBytes >= maxFileBytes) {
+                rotate();
+            }
+            String text = batch.toString();
+            writer.write(text);
+            writer.flush();
+            fileBytes += text.getBytes(StandardCharsets.UTF_8).length;
+        } catch (IOException e) {
+            report(e);
+            // Part of the batch may have reached the file, so the retry starts a new one.
+            abandonFile();
+            return false;
+        }
+        if (failing) {
+            System.err.println("Event sink: writing to " + directory + " recovered");
+            failing = false;
+        }
+        batch.setLength(0);
+        batched = 0;
+        return true;
+    }
+
+    /**
+     * Writes out any batched events and closes the current file. Closing more than once has no effect.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        flusher.shutdown();
+        if (!flush()) {
+            System.err.println("Event sink: " + batched + " events could not be written to " + directory);
+        }
+        closed = true;
+        try {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+        } catch (IOException e) {
+            report(e);
+        }
+    }
+
+    /**
+     * Reports a write failure on standard error. Only the first of a run of failures is reported,
+     * so a retry every flush does not flood the output.
+     * @param e The failure.
+     */
+    private synchronized void report(Exception e) {
+        if (!failing) {
+            System.err.println("Event sink: writing to " + directory + " failed, will retry: " + e);
+            failing = true;
+        }
+    }
+
+    /**
+     * Drops the current file after a failed write so the next flush starts a new file.
+     */
+    private void abandonFile() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                // The file is already failing; the original failure has been reported.
+            }
+            writer = null;
+        }
+    }
+
+    /**
+     * Closes the current file and opens the next one.
+     * Existing files are skipped so earlier runs are never overwritten.
+     * @throws IOException If the file cannot be opened.
+     */
+    private void rotate() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+        writer = null;
+        File file = nextFile();
+        writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+        // Only use up the name once the file has been opened, so a failed open is retried under the same name.
+        fileIndex++;
+        fileBytes = 0;
+    }
+
+    /**
+     * Finds the next unused event file name.
+     * @return The next file to write to.
+     */
+    private File nextFile() {
+        File file = new File(directory, "events-" + fileIndex + ".jsonl");
+        while (file.exists()) {
+            fileIndex++;
+            file = new File(directory, "events-" + fileIndex + ".jsonl");
+        }
+        return file;
+    }
+}
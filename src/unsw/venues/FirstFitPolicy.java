@@ -0,0 +1,16 @@
+package unsw.venues;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+
+/**
+ * The allocation policy required by the spec: the first available rooms in order of definition are assigned.
+ */
+public class FirstFitPolicy implements AllocationPolicy {
+
+    @Override
+    public ArrayList<Room> selectRooms(Venue venue, LocalDate start, LocalDate end, int small, int medium, int large,
+            Transaction transaction) {
+        return venue.getAvailableRooms(start, end, small, medium, large, transaction);
+    }
+}
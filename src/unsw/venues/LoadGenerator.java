@@ -0,0 +1,558 @@
+package unsw.venues;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.json.JSONObject;
+
+/**
+ * Load testing tool for the venue hire system. It generates a seeded stream of realistic commands,
+ * feeds each one through a VenueHireSystem end to end, and reports throughput, latency percentiles and the peak
+ * heap in use.
+ *
+ * The same seed and settings always produce the same command stream, so two builds can be compared by the
+ * digest of their output, or by writing the commands and output to files and diffing them.
+ * Changes and cancellations only target reservations that the system accepted, so the stream never
+ * contains invalid input. The generator learns which reservations were accepted from the system's
+ * reservation events.
+ *
+ * With --async the commands are fed through a CommandPipeline instead of being processed one at a time.
+ * The generator then only knows about acceptances the pipeline has already committed, so the stream depends
+ * on timing and is not reproducible from the seed. Use --emit to keep it for replaying.
+ */
+public class LoadGenerator implements ReservationListener {
+    private static final String[] SIZES = {"small", "medium", "large"};
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+    // Maximum number of latency samples kept. Longer runs keep a uniform random sample of this size.
+    private static final int MAX_SAMPLES = 1000000;
+    // Number of commands between readings of the heap in use.
+    private static final int HEAP_INTERVAL = 256;
+    // Number of days covered by each generated utilisation report.
+    private static final int UTILISATION_DAYS = 30;
+
+    private Random random;
+    private int venueCount;
+    private int roomsPerVenue;
+    private int[] sizeWeights;
+    private int maxRoomsPerRequest;
+    private double meanDays;
+    private int maxDays;
+    private int horizonDays;
+    private double changeRatio;
+    private double cancelRatio;
+    private double listRatio;
+    private double utilisationRatio;
+
+    private ArrayList<String> liveIDs;
+    private int nextID;
+    private long requests;
+    private long requestsAccepted;
+    private long changes;
+    private long changesAccepted;
+
+    /**
+     * Constructor method to create a load generator with the default settings.
+     * @param seed Seed for the random number generator.
+     */
+    public LoadGenerator(long seed) {
+        this.random = new Random(seed);
+        this.venueCount = 10;
+        this.roomsPerVenue = 20;
+        this.sizeWeights = new int[] {5, 3, 2};
+        this.maxRoomsPerRequest = 3;
+        this.meanDays = 3;
+        this.maxDays = 14;
+        this.horizonDays = 365;
+        this.changeRatio = 0.1;
+        this.cancelRatio = 0.1;
+        this.listRatio = 0;
+        this.utilisationRatio = 0;
+        this.liveIDs = new ArrayList<String>();
+        this.nextID = 0;
+        this.requests = 0;
+        this.requestsAccepted = 0;
+        this.changes = 0;
+        this.changesAccepted = 0;
+    }
+
+    /**
+     * Generates the room commands that set up every venue. Room sizes follow the size mix.
+     * @return An ArrayList of room commands.
+     */
+    public ArrayList<JSONObject> generateRooms() {
+        ArrayList<JSONObject> commands = new ArrayList<JSONObject>();
+        for (int v = 0; v < venueCount; v++) {
+            for (int r = 0; r < roomsPerVenue; r++) {
+                JSONObject command = new JSONObject();
+                command.put("command", "room");
+                command.put("venue", "Venue " + v);
+                command.put("room", "Room " + v + " " + r);
+                command.put("size", randomSize());
+                commands.add(command);
+            }
+        }
+        return commands;
+    }
+
+    /**
+     * Generates the next request, change, cancel, list or utilisation command.
+     * Changes and cancellations are only generated once some reservation has been accepted.
+     * @return The next command.
+     */
+    public synchronized JSONObject next() {
+        double roll = random.nextDouble();
+        if (!liveIDs.isEmpty()) {
+            if (roll < cancelRatio) {
+                // Swap with the last element so removal does not shift the list.
+                int index = random.nextInt(liveIDs.size());
+                String id = liveIDs.get(index);
+                liveIDs.set(index, liveIDs.get(liveIDs.size() - 1));
+                liveIDs.remove(liveIDs.size() - 1);
+                JSONObject command = new JSONObject();
+                command.put("command", "cancel");
+                command.put("id", id);
+                return command;
+            }
+            if (roll < cancelRatio + changeRatio) {
+                changes++;
+                return booking("change", liveIDs.get(random.nextInt(liveIDs.size())));
+            }
+        }
+        if (roll < cancelRatio + changeRatio + listRatio) {
+            JSONObject command = new JSONObject();
+            command.put("command", "list");
+            command.put("venue", "Venue " + random.nextInt(venueCount));
+            return command;
+        }
+        if (roll < cancelRatio + changeRatio + listRatio + utilisationRatio) {
+            // Not part of the original spec, so streams containing these cannot be replayed against it.
+            LocalDate start = FIRST_DAY.plusDays(random.nextInt(horizonDays));
+            JSONObject command = new JSONObject();
+            command.put("command", "utilisation");
+            command.put("venue", "Venue " + random.nextInt(venueCount));
+            command.put("start", start.toString());
+            command.put("end", start.plusDays(UTILISATION_DAYS - 1).toString());
+            return command;
+        }
+        requests++;
+        return booking("request", "Booking " + nextID++);
+    }
+
+    /**
+     * Records accepted requests and changes. Accepted requests become targets for later changes and cancellations.
+     * @param event The event describing the committed mutation.
+     */
+    @Override
+    public synchronized void onEvent(ReservationEvent event) {
+        switch (event.getType()) {
+        case "request":
+            requestsAccepted++;
+            liveIDs.add(event.getID());
+            break;
+        case "change":
+            changesAccepted++;
+            break;
+        }
+    }
+
+    /**
+     * Creates a request or change command with random dates and rooms.
+     * Booking lengths follow a geometric distribution with the configured mean, capped at the maximum length.
+     * @param type Either request or change.
+     * @param id The reservation ID.
+     * @return The command.
+     */
+    private JSONObject booking(String type, String id) {
+        int days = 1;
+        double stop = 1 / meanDays;
+        while (days < maxDays && random.nextDouble() >= stop) {
+            days++;
+        }
+        LocalDate start = FIRST_DAY.plusDays(random.nextInt(horizonDays));
+        LocalDate end = start.plusDays(days - 1);
+        int[] counts = new int[SIZES.length];
+        int rooms = 1 + random.nextInt(maxRoomsPerRequest);
+        for (int i = 0; i < rooms; i++) {
+            counts[sizeIndex(randomSize())]++;
+        }
+        JSONObject command = new JSONObject();
+        command.put("command", type);
+        command.put("id", id);
+        command.put("start", start.toString());
+        command.put("end", end.toString());
+        command.put("small", counts[0]);
+        command.put("medium", counts[1]);
+        command.put("large", counts[2]);
+        return command;
+    }
+
+    /**
+     * Picks a room size according to the size mix.
+     * @return small, medium or large.
+     */
+    private String randomSize() {
+        int total = 0;
+        for (int weight : sizeWeights) {
+            total += weight;
+        }
+        int roll = random.nextInt(total);
+        for (int i = 0; i < SIZES.length; i++) {
+            roll -= sizeWeights[i];
+            if (roll < 0) {
+                return SIZES[i];
+            }
+        }
+        return SIZES[SIZES.length - 1];
+    }
+
+    /**
+     * Finds the position of a size in the size list.
+     * @param size small, medium or large.
+     * @return The index of the size.
+     */
+    private static int sizeIndex(String size) {
+        return Arrays.asList(SIZES).indexOf(size);
+    }
+
+    /**
+     * Runs the load test. Options (all optional):
+     * --commands N, --seed S, --venues V, --rooms R (per venue), --mix small:medium:large (weights),
+     * --max-rooms N (per request), --mean-days D, --max-days D, --horizon D,
+     * --change-ratio X, --cancel-ratio X, --list-ratio X, --utilisation-ratio X, --policy NAME,
+     * --async (feed commands through a CommandPipeline),
+     * --emit FILE (write the command stream), --output FILE (write the system output).
+     * @param args Command line options.
+     * @throws IOException If a file cannot be written.
+     * @throws NoSuchAlgorithmException If SHA-256 is not available.
+     */
+    public static void main(String[] args) throws IOException, NoSuchAlgorithmException {
+        long commandCount = 100000;
+        long seed = 1;
+        String policyName = "first-fit";
+        boolean async = false;
+        String emitFile = null;
+        String outputFile = null;
+        ArrayList<String> settings = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "--async":
+                async = true;
+                break;
+            case "--commands":
+                commandCount = Long.parseLong(args[++i]);
+                break;
+            case "--seed":
+                seed = Long.parseLong(args[++i]);
+                break;
+            case "--policy":
+                policyName = args[++i];
+                break;
+            case "--emit":
+                emitFile = args[++i];
+                break;
+            case "--output":
+                outputFile = args[++i];
+                break;
+            default:
+                // Generator settings are applied once the generator exists.
+                settings.add(args[i]);
+                settings.add(args[++i]);
+            }
+        }
+        LoadGenerator generator = new LoadGenerator(seed);
+        for (int i = 0; i < settings.size(); i += 2) {
+            generator.configure(settings.get(i), settings.get(i + 1));
+        }
+
+        VenueHireSystem system = new VenueHireSystem(VenueHireSystem.createPolicy(policyName));
+        system.subscribe(generator);
+        Writer emit = open(emitFile);
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        // Everything the system outputs passes through the digest, whether or not it is also kept in a file.
+        OutputStream output = new DigestOutputStream(
+                outputFile == null ? OutputStream.nullOutputStream() : new FileOutputStream(outputFile), digest);
+        long[] samples = new long[(int) Math.min(commandCount, MAX_SAMPLES)];
+
+        // Per-pool peaks happen at different times, so adding them up would overstate the peak.
+        // Instead the total heap in use is read regularly during the run.
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long peakHeap = memory.getHeapMemoryUsage().getUsed();
+
+        long startTime = System.nanoTime();
+        if (async) {
+            peakHeap = Math.max(peakHeap, generator.runAsync(system, commandCount, emit, output, memory));
+        } else {
+            peakHeap = Math.max(peakHeap, generator.runSync(system, commandCount, emit, output, memory, samples, seed));
+        }
+        long elapsed = System.nanoTime() - startTime;
+        peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+        close(emit);
+        output.close();
+
+        Arrays.sort(samples);
+
+        System.out.println("mode:             " + (async ? "async" : "sync"));
+        System.out.println("policy:           " + policyName);
+        System.out.println("commands:         " + commandCount);
+        System.out.printf("elapsed:          %.3f s%n", elapsed / 1e9);
+        System.out.printf("throughput:       %.0f commands/s%n", commandCount / (elapsed / 1e9));
+        System.out.printf("requests:         %d (%.2f%% accepted)%n", generator.requests,
+                percent(generator.requestsAccepted, generator.requests));
+        System.out.printf("changes:          %d (%.2f%% accepted)%n", generator.changes,
+                percent(generator.changesAccepted, generator.changes));
+        if (async) {
+            // Commands overlap in the pipeline, so per-command latency is not meaningful.
+            System.out.println("latency:          not measured in async mode");
+        } else {
+            System.out.printf("latency p50:      %.1f us%n", percentile(samples, 0.5));
+            System.out.printf("latency p90:      %.1f us%n", percentile(samples, 0.9));
+            System.out.printf("latency p99:      %.1f us%n", percentile(samples, 0.99));
+            System.out.printf("latency p99.9:    %.1f us%n", percentile(samples, 0.999));
+            System.out.printf("latency max:      %.1f us%n", samples.length == 0 ? 0 : samples[samples.length - 1] / 1e3);
+        }
+        System.out.printf("peak heap used:   %.1f MB (sampled every %d commands)%n", peakHeap / (1024.0 * 1024.0),
+                HEAP_INTERVAL);
+        System.out.println("output sha256:    " + hex(digest.digest()));
+    }
+
+    /**
+     * Processes the rooms and then the generated commands one at a time, timing each command.
+     * @param system The system under test.
+     * @param commandCount Number of commands to generate after the rooms.
+     * @param emit Writer for the command stream, or null.
+     * @param output Stream for the system output.
+     * @param memory Used to read the heap in use.
+     * @param samples Array to fill with latency samples in nanoseconds.
+     * @param seed Seed for choosing latency samples.
+     * @return The largest heap use seen.
+     * @throws IOException If the commands or output cannot be written.
+     */
+    private long runSync(VenueHireSystem system, long commandCount, Writer emit, OutputStream output,
+            MemoryMXBean memory, long[] samples, long seed) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        Random sampler = new Random(seed);
+        long peakHeap = 0;
+        // Setting up rooms is not part of the measured latency.
+        for (JSONObject command : generateRooms()) {
+            String line = command.toString();
+            write(emit, line);
+            system.processCommand(new JSONObject(line));
+        }
+        for (long n = 0; n < commandCount; n++) {
+            String line = next().toString();
+            write(emit, line);
+
+            // Time the full path of a command: parsing the line, executing it and encoding the output.
+            long before = System.nanoTime();
+            String result = system.processCommand(new JSONObject(line));
+            long latency = System.nanoTime() - before;
+
+            if (n < samples.length) {
+                samples[(int) n] = latency;
+            } else {
+                // Reservoir sampling keeps every command equally likely to be in the sample.
+                long slot = (long) (sampler.nextDouble() * (n + 1));
+                if (slot < samples.length) {
+                    samples[(int) slot] = latency;
+                }
+            }
+            if (n % HEAP_INTERVAL == 0) {
+                peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+            }
+            if (result != null) {
+                writer.write(result);
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+        return peakHeap;
+    }
+
+    /**
+     * Writes the rooms and then the generated commands into a CommandPipeline running on another thread.
+     * Returns once the pipeline has written all output.
+     * @param system The system under test.
+     * @param commandCount Number of commands to generate after the rooms.
+     * @param emit Writer for the command stream, or null.
+     * @param output Stream for the system output.
+     * @param memory Used to read the heap in use.
+     * @return The largest heap use seen.
+     * @throws IOException If the commands or output cannot be written.
+     */
+    private long runAsync(VenueHireSystem system, long commandCount, Writer emit, OutputStream output,
+            MemoryMXBean memory) throws IOException {
+        PipedInputStream in = new PipedInputStream(64 * 1024);
+        Writer commands = new BufferedWriter(new OutputStreamWriter(new PipedOutputStream(in), StandardCharsets.UTF_8));
+        RuntimeException[] failure = new RuntimeException[1];
+        Thread runner = new Thread(() -> {
+            try {
+                new CommandPipeline(system, 1024).run(in, output);
+            } catch (RuntimeException e) {
+                failure[0] = e;
+            }
+        }, "load-pipeline");
+        runner.start();
+        long peakHeap = 0;
+        for (JSONObject command : generateRooms()) {
+            String line = command.toString();
+            write(emit, line);
+            write(commands, line);
+        }
+        for (long n = 0; n < commandCount; n++) {
+            String line = next().toString();
+            write(emit, line);
+            write(commands, line);
+            if (n % HEAP_INTERVAL == 0) {
+                peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+            }
+        }
+        commands.close();
+        try {
+            runner.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return peakHeap;
+    }
+
+    /**
+     * Applies a generator setting given on the command line.
+     * @param option The option name.
+     * @param value The option value.
+     */
+    private void configure(String option, String value) {
+        switch (option) {
+        case "--venues":
+            venueCount = Integer.parseInt(value);
+            break;
+        case "--rooms":
+            roomsPerVenue = Integer.parseInt(value);
+            break;
+        case "--mix":
+            String[] parts = value.split(":");
+            for (int i = 0; i < SIZES.length; i++) {
+                sizeWeights[i] = Integer.parseInt(parts[i]);
+            }
+            break;
+        case "--max-rooms":
+            maxRoomsPerRequest = Integer.parseInt(value);
+            break;
+        case "--mean-days":
+            meanDays = Double.parseDouble(value);
+            break;
+        case "--max-days":
+            maxDays = Integer.parseInt(value);
+            break;
+        case "--horizon":
+            horizonDays = Integer.parseInt(value);
+            break;
+        case "--change-ratio":
+            changeRatio = Double.parseDouble(value);
+            break;
+        case "--cancel-ratio":
+            cancelRatio = Double.parseDouble(value);
+            break;
+        case "--list-ratio":
+            listRatio = Double.parseDouble(value);
+            break;
+        case "--utilisation-ratio":
+            utilisationRatio = Double.parseDouble(value);
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown option: " + option);
+        }
+    }
+
+    /**
+     * Opens a buffered file writer, or returns null if no file was given.
+     * @param file The file name, or null.
+     * @return The writer, or null.
+     * @throws IOException If the file cannot be opened.
+     */
+    private static Writer open(String file) throws IOException {
+        if (file == null) {
+            return null;
+        }
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes a line if the writer exists.
+     * @param writer The writer, or null.
+     * @param line The line to write.
+     * @throws IOException If the line cannot be written.
+     */
+    private static void write(Writer writer, String line) throws IOException {
+        if (writer != null) {
+            writer.write(line);
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Closes a writer if it exists.
+     * @param writer The writer, or null.
+     * @throws IOException If the writer cannot be closed.
+     */
+    private static void close(Writer writer) throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    /**
+     * Reads a percentile from sorted latency samples.
+     * @param sorted Latencies in nanoseconds, sorted in ascending order.
+     * @param fraction The percentile as a fraction between 0 and 1.
+     * @return The latency in microseconds.
+     */
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e3;
+    }
+
+    /**
+     * Calculates a percentage, treating an empty total as 0%.
+     * @param part The counted amount.
+     * @param total The total amount.
+     * @return The percentage.
+     */
+    private static double percent(long part, long total) {
+        return total == 0 ? 0 : part * 100.0 / total;
+    }
+
+    /**
+     * Formats bytes as a hexadecimal String.
+     * @param bytes The bytes to format.
+     * @return The hexadecimal String.
+     */
+    private static String hex(byte[] bytes) {
+        StringBuilder result = new StringBuilder();
+        for (byte b : bytes) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+}
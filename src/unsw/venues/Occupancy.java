@@ -0,0 +1,75 @@
+package unsw.venues;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+
+/**
+ * Per-day counters of booked rooms for a venue, split by room size. The counters are updated whenever a
+ * reservation is added to or cancelled from the venue, so utilisation reports never need to scan reservations.
+ */
+public class Occupancy {
+    private HashMap<String, HashMap<LocalDate, Integer>> booked;
+
+    /**
+     * Constructor method to create an occupancy record. Initially, no days are booked.
+     */
+    public Occupancy() {
+        this.booked = new HashMap<String, HashMap<LocalDate, Integer>>();
+    }
+
+    /**
+     * Counts every room of a reservation as booked on each day of the reservation.
+     * @param reservation The reservation that was added to the venue.
+     */
+    public void book(Reservation reservation) {
+        adjust(reservation, 1);
+    }
+
+    /**
+     * Frees every room of a reservation on each day of the reservation.
+     * @param reservation The reservation that was cancelled from the venue.
+     */
+    public void release(Reservation reservation) {
+        adjust(reservation, -1);
+    }
+
+    /**
+     * Getter method to retrieve the number of booked rooms of a size on a day.
+     * @param size The room size (small, medium or large).
+     * @param date The day to check.
+     * @return The number of rooms of the given size that are booked on that day.
+     */
+    public int getBooked(String size, LocalDate date) {
+        HashMap<LocalDate, Integer> days = booked.get(size);
+        if (days == null) {
+            return 0;
+        }
+        Integer count = days.get(date);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Adds the given amount to the counter of each room's size for every day of the reservation.
+     * Counters that drop to zero are removed so the record only grows with booked days.
+     * @param reservation The reservation to count.
+     * @param amount The amount to add for each room on each day.
+     */
+    private void adjust(Reservation reservation, int amount) {
+        for (Room room : reservation.getRooms()) {
+            HashMap<LocalDate, Integer> days = booked.get(room.getSize());
+            if (days == null) {
+                days = new HashMap<LocalDate, Integer>();
+                booked.put(room.getSize(), days);
+            }
+            // Dates are inclusive so the end date is counted as well.
+            for (LocalDate date = reservation.getStart(); !date.isAfter(reservation.getEnd()); date = date.plusDays(1)) {
+                int count = days.getOrDefault(date, 0) + amount;
+                if (count == 0) {
+                    days.remove(date);
+                } else {
+                    days.put(date, count);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package unsw.venues;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * An allocation policy that places a request in the rooms that are already the most booked.
+ * Bookings are packed into as few rooms as possible, leaving other rooms entirely free for
+ * long or multi-room requests.
+ */
+public class PackedPolicy extends RankedAllocationPolicy {
+
+    @Override
+    protected long score(Venue venue, Room room, LocalDate start, LocalDate end, Transaction transaction) {
+        long bookedDays = 0;
+        for (Reservation reservation : venue.getReservations(room)) {
+            if (transaction == null || !transaction.isCancelled(reservation)) {
+                bookedDays += length(reservation);
+            }
+        }
+        if (transaction != null) {
+            for (Reservation reservation : transaction.getAdded()) {
+                if (Room.containsRoom(reservation.getRooms(), room)) {
+                    bookedDays += length(reservation);
+                }
+            }
+        }
+        // Most booked days ranks first.
+        return -bookedDays;
+    }
+
+    /**
+     * Counts the days of a reservation. Dates are inclusive.
+     * @param reservation The reservation to count.
+     * @return The number of days booked.
+     */
+    private static long length(Reservation reservation) {
+        return ChronoUnit.DAYS.between(reservation.getStart(), reservation.getEnd()) + 1;
+    }
+}
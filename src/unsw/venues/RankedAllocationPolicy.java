@@ -0,0 +1,83 @@
+package unsw.venues;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * An allocation policy that ranks the available rooms of each size by a score and assigns the lowest scoring ones.
+ * Rooms with equal scores are ranked in order of definition.
+ */
+public abstract class RankedAllocationPolicy implements AllocationPolicy {
+
+    @Override
+    public ArrayList<Room> selectRooms(Venue venue, LocalDate start, LocalDate end, int small, int medium, int large,
+            Transaction transaction) {
+        HashSet<Room> chosen = new HashSet<Room>();
+        if (!choose(venue, "small", small, start, end, transaction, chosen) ||
+            !choose(venue, "medium", medium, start, end, transaction, chosen) ||
+            !choose(venue, "large", large, start, end, transaction, chosen)) {
+            return null;
+        }
+        // Output must list the rooms in order of definition regardless of how they were ranked.
+        ArrayList<Room> result = new ArrayList<Room>();
+        for (Room room : venue.getRooms()) {
+            if (chosen.contains(room)) {
+                result.add(room);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Scores an available room for the requested period. Lower scores are preferred.
+     * @param venue The venue the room belongs to.
+     * @param room An available room.
+     * @param start Requested start date.
+     * @param end Requested end date.
+     * @param transaction The transaction in progress.
+     * @return The score of the room.
+     */
+    protected abstract long score(Venue venue, Room room, LocalDate start, LocalDate end, Transaction transaction);
+
+    /**
+     * Adds the best ranked available rooms of a size to the chosen rooms.
+     * @param venue The venue to choose rooms from.
+     * @param size The room size to choose.
+     * @param count Number of rooms needed.
+     * @param start Requested start date.
+     * @param end Requested end date.
+     * @param transaction The transaction in progress.
+     * @param chosen The set of rooms chosen so far.
+     * @return True if enough rooms were available. Otherwise, false.
+     */
+    private boolean choose(Venue venue, String size, int count, LocalDate start, LocalDate end,
+            Transaction transaction, HashSet<Room> chosen) {
+        if (count <= 0) {
+            return true;
+        }
+        ArrayList<Room> candidates = new ArrayList<Room>();
+        ArrayList<Long> scores = new ArrayList<Long>();
+        for (Room room : venue.getRooms()) {
+            if (room.getSize().equals(size) && venue.isRoomAvailable(room, start, end, transaction)) {
+                candidates.add(room);
+                scores.add(score(venue, room, start, end, transaction));
+            }
+        }
+        if (candidates.size() < count) {
+            return false;
+        }
+        // Pick the lowest score each time. Strict comparison keeps ties in order of definition.
+        for (int i = 0; i < count; i++) {
+            int best = 0;
+            for (int j = 1; j < candidates.size(); j++) {
+                if (scores.get(j) < scores.get(best)) {
+                    best = j;
+                }
+            }
+            chosen.add(candidates.remove(best));
+            scores.remove(best);
+        }
+        return true;
+    }
+}
@@ -116,13 +116,25 @@ public class Reservation {
     // Date DOES NOT overlap if requeted start and end dates are either before reserved start dates
     // OR after reserved end dates. 
     public static boolean hasDateOverlap(ArrayList<Reservation> reservations, LocalDate start, LocalDate end) {
+        return hasDateOverlap(reservations, start, end, null);
+    }
+
+    /**
+     * Checks if there is a date overlap between the requested time and the reservation times, ignoring
+     * some of the reservations. Used to leave out reservations whose cancellation is staged in a transaction.
+     * @param reservations ArrayList of type Reservation
+     * @param start Requested start date.
+     * @param end Requested end date.
+     * @param skip Reservations to ignore, or null to check all of them.
+     * @return True if a reservation that is not skipped overlaps the requested dates. Otherwise, false.
+     */
+    public static boolean hasDateOverlap(ArrayList<Reservation> reservations, LocalDate start, LocalDate end,
+            ArrayList<Reservation> skip) {
         for (Reservation reservation : reservations) {
-            // No overlap condition logic
-            if ((start.isBefore(reservation.getStart()) && end.isBefore(reservation.getStart())) ||
-                (start.isAfter(reservation.getEnd()) && end.isAfter(reservation.getEnd()))) {
-                // No overlap so continue
+            if (skip != null && skip.contains(reservation)) {
                 continue;
-            } else {
+            }
+            if (reservation.overlaps(start, end)) {
                 // Overlap encountered.
                 return true;
             }
@@ -131,6 +143,19 @@ public class Reservation {
         return false;
     }
 
+    /**
+     * Checks if the reservation's dates overlap the requested time. Dates are inclusive.
+     * @param start Requested start date.
+     * @param end Requested end date.
+     * @return True if the dates overlap. Otherwise, false.
+     */
+    // Date DOES NOT overlap if requeted start and end dates are either before reserved start dates
+    // OR after reserved end dates. 
+    public boolean overlaps(LocalDate start, LocalDate end) {
+        return !((start.isBefore(this.start) && end.isBefore(this.start)) ||
+                 (start.isAfter(this.end) && end.isAfter(this.end)));
+    }
+
     /**
      * An overloaded method. Searches through an ArrayList of reservations according to input. This particular method searches for a reservation matching an id.
      * @param reservations An ArrayList of Reservation instances
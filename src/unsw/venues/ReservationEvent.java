@@ -0,0 +1,112 @@
+package unsw.venues;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * An event describing a committed reservation mutation. It holds a copy of the reservation's details at the time
+ * of the mutation, so later changes to the reservation do not affect the event.
+ */
+public class ReservationEvent {
+    private long sequence;
+    private String type;
+    private String id;
+    private String venue;
+    private ArrayList<String> rooms;
+    private LocalDate start;
+    private LocalDate end;
+
+    /**
+     * Constructor method to create an event.
+     * @param sequence Sequence number of the event. Numbers increase in order of commit.
+     * @param type The kind of mutation: request, change or cancel.
+     * @param reservation The reservation that was made, changed to, or cancelled.
+     */
+    public ReservationEvent(long sequence, String type, Reservation reservation) {
+        this.sequence = sequence;
+        this.type = type;
+        this.id = reservation.getID();
+        this.venue = reservation.getVenueName();
+        this.rooms = new ArrayList<String>();
+        for (Room room : reservation.getRooms()) {
+            rooms.add(room.getName());
+        }
+        this.start = reservation.getStart();
+        this.end = reservation.getEnd();
+    }
+
+    /**
+     * Getter method to retrieve the sequence number.
+     * @return The sequence number of the event.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Getter method to retrieve the kind of mutation.
+     * @return request, change or cancel.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Getter method to retrieve the reservation ID.
+     * @return The unique ID of the reservation.
+     */
+    public String getID() {
+        return id;
+    }
+
+    /**
+     * Getter method to retrieve the venue name.
+     * @return The name of the venue the reservation belongs to.
+     */
+    public String getVenue() {
+        return venue;
+    }
+
+    /**
+     * Getter method to retrieve the names of the reserved rooms.
+     * @return An ArrayList of room names in order of definition.
+     */
+    public ArrayList<String> getRooms() {
+        return rooms;
+    }
+
+    /**
+     * Getter method to retrieve the starting date.
+     * @return The starting date of the reservation.
+     */
+    public LocalDate getStart() {
+        return start;
+    }
+
+    /**
+     * Getter method to retrieve the ending date.
+     * @return The ending date of the reservation.
+     */
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    /**
+     * Creates a JSONObject containing the event.
+     * @return A JSONObject with the sequence number, type, id, venue, rooms, start and end.
+     */
+    public JSONObject toJSON() {
+        JSONObject json = new JSONObject();
+        json.put("seq", sequence);
+        json.put("type", type);
+        json.put("id", id);
+        json.put("venue", venue);
+        json.put("rooms", new JSONArray(rooms));
+        json.put("start", start.toString());
+        json.put("end", end.toString());
+        return json;
+    }
+}
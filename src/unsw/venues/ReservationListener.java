@@ -0,0 +1,15 @@
+package unsw.venues;
+
+/**
+ * Receives an event for every reservation mutation committed by a venue hire system.
+ */
+public interface ReservationListener {
+    /**
+     * Called after a request, change or cancellation has been committed.
+     * Events arrive in order of their sequence numbers.
+     * The mutation cannot be undone at this point, so implementations should handle their own failures
+     * rather than throw. Anything thrown ends the command before its output is produced.
+     * @param event The event describing the mutation.
+     */
+    public void onEvent(ReservationEvent event);
+}
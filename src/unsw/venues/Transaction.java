@@ -0,0 +1,131 @@
+package unsw.venues;
+
+import java.util.ArrayList;
+
+/**
+ * A group of reservation mutations that are applied to their venues together or not at all.
+ * Cancellations and additions are staged first. Until commit, the venues are untouched, but
+ * availability checks made with the transaction already see the staged mutations. On commit the
+ * mutations are applied to their venues and recorded in an undo log, so a failure part way through
+ * leaves every venue as it was.
+ * A transaction may span several venues, since a change can move a reservation to another venue.
+ */
+public class Transaction {
+    private ArrayList<Reservation> cancelled;
+    private ArrayList<Reservation> added;
+    private ArrayList<Runnable> undoLog;
+    private boolean finished;
+
+    /**
+     * Constructor method to create a transaction with nothing staged.
+     */
+    public Transaction() {
+        this.cancelled = new ArrayList<Reservation>();
+        this.added = new ArrayList<Reservation>();
+        this.undoLog = new ArrayList<Runnable>();
+        this.finished = false;
+    }
+
+    /**
+     * Stages the cancellation of a reservation.
+     * @param reservation The reservation to cancel on commit.
+     */
+    public void stageCancel(Reservation reservation) {
+        checkOpen();
+        cancelled.add(reservation);
+    }
+
+    /**
+     * Stages the addition of a reservation to its venue.
+     * @param reservation The reservation to add on commit.
+     */
+    public void stageAdd(Reservation reservation) {
+        checkOpen();
+        added.add(reservation);
+    }
+
+    /**
+     * Getter method to retrieve the reservations whose cancellation is staged.
+     * @return An ArrayList of Reservation instances to cancel on commit.
+     */
+    public ArrayList<Reservation> getCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Getter method to retrieve the reservations whose addition is staged.
+     * @return An ArrayList of Reservation instances to add on commit.
+     */
+    public ArrayList<Reservation> getAdded() {
+        return added;
+    }
+
+    /**
+     * Checks whether the cancellation of a reservation is staged.
+     * @param reservation The reservation to check.
+     * @return True if the reservation will be cancelled on commit. Otherwise, false.
+     */
+    public boolean isCancelled(Reservation reservation) {
+        return cancelled.contains(reservation);
+    }
+
+    /**
+     * Applies the staged cancellations and then the staged additions to their venues.
+     * If any mutation fails, the ones already applied are undone and the failure is rethrown.
+     */
+    public void commit() {
+        checkOpen();
+        finished = true;
+        try {
+            for (Reservation reservation : cancelled) {
+                Venue venue = reservation.getVenue();
+                // Remember the position so an undo puts the reservation back where it was.
+                int index = venue.getReservation().indexOf(reservation);
+                if (index < 0) {
+                    // Not in the venue, so there is nothing to cancel and nothing to put back.
+                    continue;
+                }
+                venue.cancelReservation(reservation);
+                undoLog.add(() -> venue.addReservation(reservation, index));
+            }
+            for (Reservation reservation : added) {
+                Venue venue = reservation.getVenue();
+                venue.addReservation(reservation);
+                undoLog.add(() -> venue.cancelReservation(reservation));
+            }
+        } catch (RuntimeException e) {
+            undo();
+            throw e;
+        }
+        undoLog.clear();
+    }
+
+    /**
+     * Discards the staged mutations. The venues are left exactly as they were.
+     */
+    public void rollback() {
+        checkOpen();
+        finished = true;
+        cancelled.clear();
+        added.clear();
+    }
+
+    /**
+     * Reverts the applied mutations in reverse order.
+     */
+    private void undo() {
+        for (int i = undoLog.size() - 1; i >= 0; i--) {
+            undoLog.get(i).run();
+        }
+        undoLog.clear();
+    }
+
+    /**
+     * Checks that the transaction has not already been committed or rolled back.
+     */
+    private void checkOpen() {
+        if (finished) {
+            throw new IllegalStateException("Transaction has already finished");
+        }
+    }
+}
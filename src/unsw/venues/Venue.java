@@ -2,6 +2,7 @@ package unsw.venues;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 
 /**
  * A venue that contains a list of rooms within the venue and the reservations that it has. It also has a name.
@@ -10,6 +11,8 @@ public class Venue {
     private String name;
     private ArrayList<Room> rooms;
     private ArrayList<Reservation> reservations;
+    private Occupancy occupancy;
+    private HashMap<Room, ArrayList<Reservation>> roomReservations;
 
     /**
      * Constructor method to create a venue.
@@ -20,6 +23,8 @@ public class Venue {
         this.name = name;
         this.rooms = new ArrayList<Room>();
         this.reservations = new ArrayList<Reservation>();
+        this.occupancy = new Occupancy();
+        this.roomReservations = new HashMap<Room, ArrayList<Reservation>>();
     }
     /**
      * Geter method to retrieve the name of the venue.
@@ -44,6 +49,7 @@ public class Venue {
     public void addRoom(String name, String size) {
         Room newRoom = new Room(this, name, size);
         rooms.add(newRoom);
+        roomReservations.put(newRoom, new ArrayList<Reservation>());
     }
     /**
      * Removes a room from the ArrayList in the venue instance.
@@ -51,6 +57,7 @@ public class Venue {
      */
     public void removeRoom(Room room) {
         rooms.remove(room);
+        roomReservations.remove(room);
     }
 
     /**
@@ -60,6 +67,76 @@ public class Venue {
     public ArrayList<Room> getRooms() {
         return rooms;
     }
+
+    /**
+     * Counts the rooms of a given size in the venue.
+     * @param size The room size (small, medium or large).
+     * @return The number of rooms of that size.
+     */
+    public int countRooms(String size) {
+        int count = 0;
+        for (Room room : rooms) {
+            if (room.getSize().equals(size)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Getter method to retrieve the per-day booking counters of the venue.
+     * @return The Occupancy instance belonging to the venue.
+     */
+    public Occupancy getOccupancy() {
+        return occupancy;
+    }
+
+    /**
+     * Getter method to retrieve the reservations that contain a room.
+     * This is read from the venue's per-room index so no reservations are scanned.
+     * @param room A room belonging to the venue.
+     * @return An ArrayList of Reservation instances that contain the room.
+     */
+    public ArrayList<Reservation> getReservations(Room room) {
+        ArrayList<Reservation> result = roomReservations.get(room);
+        return result == null ? new ArrayList<Reservation>() : result;
+    }
+
+    /**
+     * Checks whether a room has no reservation overlapping the given dates.
+     * @param room A room belonging to the venue.
+     * @param start Requested start date.
+     * @param end Requested end date.
+     * @return True if the room is free for the whole period. Otherwise, false.
+     */
+    public boolean isRoomAvailable(Room room, LocalDate start, LocalDate end) {
+        return isRoomAvailable(room, start, end, null);
+    }
+
+    /**
+     * Checks whether a room has no reservation overlapping the given dates as seen from inside a transaction.
+     * @param room A room belonging to the venue.
+     * @param start Requested start date.
+     * @param end Requested end date.
+     * @param transaction The transaction in progress, or null to only see committed reservations.
+     * @return True if the room is free for the whole period. Otherwise, false.
+     */
+    public boolean isRoomAvailable(Room room, LocalDate start, LocalDate end, Transaction transaction) {
+        if (transaction == null) {
+            return !Reservation.hasDateOverlap(getReservations(room), start, end);
+        }
+        // Committed reservations whose cancellation is staged no longer hold the room.
+        if (Reservation.hasDateOverlap(getReservations(room), start, end, transaction.getCancelled())) {
+            return false;
+        }
+        // Staged additions already hold their rooms.
+        for (Reservation reservation : transaction.getAdded()) {
+            if (Room.containsRoom(reservation.getRooms(), room) && reservation.overlaps(start, end)) {
+                return false;
+            }
+        }
+        return true;
+    }
     /**
      * Mmethod to search through a list of venues for a specific venue by name
      * @param venues An ArrayList of containing Venue instances.
@@ -104,7 +181,21 @@ public class Venue {
      * @param reservation The reservation to be added.
      */
     public void addReservation(Reservation reservation) {
-        reservations.add(reservation);
+        addReservation(reservation, reservations.size());
+    }
+
+    /**
+     * Adds a reservation at a given position in the reservation list. Used to put a cancelled
+     * reservation back where it was.
+     * @param reservation The reservation to be added.
+     * @param index The position in the venue's list of reservations.
+     */
+    public void addReservation(Reservation reservation, int index) {
+        reservations.add(index, reservation);
+        occupancy.book(reservation);
+        for (Room room : reservation.getRooms()) {
+            getReservations(room).add(reservation);
+        }
     }
     
 
@@ -121,24 +212,21 @@ public class Venue {
      * @param small Number of small rooms requested.
      * @param medium Number of medium rooms requested.
      * @param large Number of large rooms requested.
+     * @param transaction The transaction in progress, or null to only see committed reservations.
      * @return Returns an ArrayList of rooms that fulfil the request; if request cannot be fulfilled, return null.
      */
-    private ArrayList<Room> roomAvailability(LocalDate start, LocalDate end, int small, int medium, int large) {
+    private ArrayList<Room> roomAvailability(LocalDate start, LocalDate end, int small, int medium, int large,
+            Transaction transaction) {
         ArrayList<Room> availableRooms = new ArrayList<Room>();
         // Iterate for all rooms in the venue
         for (Room room : rooms) {
-            // Search the venue's reservations that contain the specified room.
-            ArrayList<Reservation> reservationsWithRoom = Reservation.searchReservation(reservations, room);
             // Try to find rooms that fulfil the request.
             switch(room.getSize()) {
                 case "small":
                     // Ignore if no small rooms are needed.
                     if (small > 0) {
-                        // If there no reservations with the room or the reserved dates do not
-                        // overlap, then add the room sinced it is available.
-                        if(reservationsWithRoom.size() == 0 ||
-                            !Reservation.hasDateOverlap(reservationsWithRoom, start, end)) {
-
+                        // If the room's reserved dates do not overlap, then add the room since it is available.
+                        if (isRoomAvailable(room, start, end, transaction)) {
                             availableRooms.add(room);
                             small--;
                         }                    
@@ -148,10 +236,7 @@ public class Venue {
                 case "medium":
                     // Ignore if no medium rooms are needed.
                     if (medium > 0) {
-                        
-                        if (reservationsWithRoom.size() == 0 ||
-                            !Reservation.hasDateOverlap(reservationsWithRoom, start, end)) {
-                            
+                        if (isRoomAvailable(room, start, end, transaction)) {
                             availableRooms.add(room);
                             medium--;
                         }
@@ -159,16 +244,14 @@ public class Venue {
                     break;
 
                 case "large":
-                    // Ignore if no large rooms ar eneeded.
+                    // Ignore if no large rooms are needed.
                     if (large > 0) {
-                        if (reservationsWithRoom.size() == 0 ||
-                            !Reservation.hasDateOverlap(reservationsWithRoom, start, end)) {
-                                
+                        if (isRoomAvailable(room, start, end, transaction)) {
                             availableRooms.add(room);
                             large--;
                         }
-                    break;
                     }
+                    break;
             }
         }
         // A request cannot be fulfilled if there are no rooms available in the venue
@@ -190,13 +273,28 @@ public class Venue {
      * @return Returns the created reservation.
      */
     public Reservation makeReservation(String id, ArrayList<Room> rooms, LocalDate start, LocalDate end) {
+        Reservation reservation = createReservation(id, rooms, start, end);
+        // Add the reservation to this venue's list of reservations
+        this.addReservation(reservation);
+        return reservation;
+    }
+
+    /**
+     * Creates a reservation with given parameters without adding it to the venue.
+     * The reservation can then be staged in a transaction.
+     * 
+     * @param id Unique reservation ID.
+     * @param rooms ArrayList of Rooms to be reserved.
+     * @param start Starting date of the reservation.
+     * @param end Ending date of the reservation.
+     * @return Returns the created reservation.
+     */
+    public Reservation createReservation(String id, ArrayList<Room> rooms, LocalDate start, LocalDate end) {
         Reservation reservation = new Reservation(this, id, start, end);
         // Add the given rooms to the reservation.
         for (Room room : rooms) {
             reservation.addRoom(room);
         }
-        // Add the reservation to this venue's list of reservations
-        this.addReservation(reservation);
         return reservation;
     }
 
@@ -211,11 +309,26 @@ public class Venue {
      */
     public ArrayList<Room> getAvailableRooms(LocalDate start, LocalDate end,
             int small, int medium, int large) {
+        return getAvailableRooms(start, end, small, medium, large, null);
+    }
+
+    /**
+     * Retreives the rooms that can fulfil the request as seen from inside a transaction.
+     * @param start Requested start date
+     * @param end Requested end date
+     * @param small Requested number of small rooms
+     * @param medium Requested number of medium rooms
+     * @param large Requeted number of large rooms
+     * @param transaction The transaction in progress, or null to only see committed reservations.
+     * @return An arraylist of Room instanes that can fulfil the request. Returns null if request cannot be fulfilled
+     */
+    public ArrayList<Room> getAvailableRooms(LocalDate start, LocalDate end,
+            int small, int medium, int large, Transaction transaction) {
         // Prepare temporary variables since the function using them will change. We do not want to change the original small, medium and large parameters.
         int tmpSmall = small;
         int tmpMedium = medium;
         int tmpLarge = large;
-        return roomAvailability(start, end, tmpSmall, tmpMedium, tmpLarge);
+        return roomAvailability(start, end, tmpSmall, tmpMedium, tmpLarge, transaction);
         
     }
 
@@ -224,6 +337,12 @@ public class Venue {
      * @param reservation The reservation to cancel
      */
     public void cancelReservation(Reservation reservation) {
-        reservations.remove(reservation);
+        // Only release the days if the reservation actually belonged to this venue.
+        if (reservations.remove(reservation)) {
+            occupancy.release(reservation);
+            for (Room room : reservation.getRooms()) {
+                getReservations(room).remove(reservation);
+            }
+        }
     }
 }
\ No newline at end of file
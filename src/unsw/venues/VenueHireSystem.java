@@ -3,6 +3,7 @@ package unsw.venues;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Scanner;
 
 import org.json.JSONArray;
@@ -19,19 +20,54 @@ import org.json.JSONObject;
  */
 public class VenueHireSystem {
     private ArrayList<Venue> venues;
+    private HashMap<String, Venue> venuesByName;
+    private DateCache dates;
+    private AllocationPolicy policy;
+    private ArrayList<ReservationListener> listeners;
+    private long sequence;
     /**
      * Constructs a venue hire system. Initially, the system contains no venues,
-     * rooms, or bookings.
+     * rooms, or bookings. Rooms are assigned first-fit as required by the spec.
      */
     public VenueHireSystem() {
-        
+        this(new FirstFitPolicy());
+    }
+
+    /**
+     * Constructs a venue hire system that assigns rooms with the given policy. Initially, the system
+     * contains no venues, rooms, or bookings.
+     * @param policy The policy used to choose rooms within a venue.
+     */
+    public VenueHireSystem(AllocationPolicy policy) {
+        this.policy = policy;
         venues = new ArrayList<Venue>();
+        venuesByName = new HashMap<String, Venue>();
+        dates = new DateCache(1024);
+        listeners = new ArrayList<ReservationListener>();
+        sequence = 0;
+    }
+
+    /**
+     * Registers a listener to be told about every committed request, change and cancellation.
+     * @param listener The listener to add.
+     */
+    public void subscribe(ReservationListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a previously registered listener.
+     * @param listener The listener to remove.
+     */
+    public void unsubscribe(ReservationListener listener) {
+        listeners.remove(listener);
     }
     /**
      * Processes a command in a JSONObject according to the command key word
      * @param json A JSONObject containing the command and relevant keys with the command.
+     * @return The output of the command formatted as JSON, or null if the command has no output.
      */
-    private void processCommand(JSONObject json) {
+    String processCommand(JSONObject json) {
         switch (json.getString("command")) {
         // Convert keys to suitable parameters relevant method. No output required.
         // Adds a room. If no venue exists with the name, make a new one.
@@ -45,31 +81,29 @@ public class VenueHireSystem {
         // Request a reservation.
         case "request":
             String id = json.getString("id");
-            LocalDate start = LocalDate.parse(json.getString("start"));
-            LocalDate end = LocalDate.parse(json.getString("end"));
+            LocalDate start = dates.parse(json.getString("start"));
+            LocalDate end = dates.parse(json.getString("end"));
             int small = json.getInt("small");
             int medium = json.getInt("medium");
             int large = json.getInt("large");
 
             JSONObject result = request(id, start, end, small, medium, large);
 
-            System.out.println(result.toString(2));
-            break;
+            return result.toString(2);
 
         // Convert keys to suitable paramters for relevant method. Output as JSONObject.
         // Change a request.
         case "change":
             String currentID = json.getString("id");
-            LocalDate newStart = LocalDate.parse(json.getString("start"));
-            LocalDate newEnd = LocalDate.parse(json.getString("end"));
+            LocalDate newStart = dates.parse(json.getString("start"));
+            LocalDate newEnd = dates.parse(json.getString("end"));
             int newSmall = json.getInt("small");
             int newMedium = json.getInt("medium");
             int newLarge = json.getInt("large");
 
             JSONObject newResult = change(currentID, newStart, newEnd, newSmall, newMedium, newLarge);
         
-            System.out.println(newResult.toString(2));
-            break;
+            return newResult.toString(2);
         // Convert keys to suitable paramters for relevant method. Output as JSONArray.
         // List the occupancy of the rooms in a venue.
         case "list":
@@ -77,8 +111,7 @@ public class VenueHireSystem {
 
             JSONArray listResult = list(listVenue);
 
-            System.out.println(listResult.toString(2));
-            break;
+            return listResult.toString(2);
 
         // Convert key to suitable parameter for relevant method. No output required.
         // Cancel a reservation.
@@ -87,7 +120,19 @@ public class VenueHireSystem {
 
             cancel(cancelID);
             break;
+
+        // Convert keys to suitable parameters for relevant method. Output as JSONArray.
+        // Report the occupancy percentage of each room size in a venue for each day.
+        case "utilisation":
+            String utilisationVenue = json.getString("venue");
+            LocalDate from = dates.parse(json.getString("start"));
+            LocalDate to = dates.parse(json.getString("end"));
+
+            JSONArray utilisationResult = utilisation(utilisationVenue, from, to);
+
+            return utilisationResult.toString(2);
         }
+        return null;
     }
 
     /**
@@ -99,11 +144,12 @@ public class VenueHireSystem {
      */
     private void addRoom(String venue_str, String room, String size) {
 
-        Venue venue = Venue.searchVenue(this.venues, venue_str);
+        Venue venue = venuesByName.get(venue_str);
         // If no venue is found, create a new venue and add it to the system
         if (venue == null) {
             venue = new Venue(venue_str);
             venues.add(venue);
+            venuesByName.put(venue_str, venue);
         }
         // Add the room the venue
         venue.addRoom(room, size);
@@ -121,18 +167,43 @@ public class VenueHireSystem {
      */
     public JSONObject request(String id, LocalDate start, LocalDate end,
             int small, int medium, int large) {
+        Transaction transaction = new Transaction();
+        Reservation reservation = allocate(transaction, id, start, end, small, medium, large);
+        if (reservation == null) {
+            // Looked through all venues but cannot fulful request
+            transaction.rollback();
+            return outputRejected();
+        }
+        transaction.commit();
+        publish("request", reservation);
+        return outputSuccess(reservation);
+    }
+
+    /**
+     * Stages a reservation in the first venue that can fulfil the request.
+     * @param transaction The transaction to stage the reservation in
+     * @param id Unique ID of the reservation
+     * @param start Requested start date
+     * @param end Requested end date
+     * @param small Requested number of small rooms
+     * @param medium Requested number of medium rooms
+     * @param large Request number of large rooms
+     * @return The reservation that was staged. Returns null if no venue can fulfil the request.
+     */
+    private Reservation allocate(Transaction transaction, String id, LocalDate start, LocalDate end,
+            int small, int medium, int large) {
         // Search through each venue
         for (Venue venue : venues) {
-            ArrayList<Room> availableRooms = venue.getAvailableRooms(start, end, small, medium, large);
+            ArrayList<Room> availableRooms = policy.selectRooms(venue, start, end, small, medium, large, transaction);
             // Check if available rooms can fulfil request
             if (availableRooms != null) {
                 // Request can be fulfiled.
-                Reservation reservation = venue.makeReservation(id, availableRooms, start, end);
-                return outputSuccess(reservation);
+                Reservation reservation = venue.createReservation(id, availableRooms, start, end);
+                transaction.stageAdd(reservation);
+                return reservation;
             }
         }
-        // Looked through all venues but cannot fulful request
-        return outputRejected();
+        return null;
     }
         
             
@@ -148,38 +219,26 @@ public class VenueHireSystem {
      * @return A JSONObject that states whether the change was successful or rejected
      */
     public JSONObject change(String id, LocalDate start, LocalDate end, int small, int medium, int large) {
-        JSONObject result = new JSONObject();
         /* According to specs, requests and changes are fulfilled as follows:
         *  1. Each venue is checked (in order of definition of input) to determine whether it
         *     can satisfy all requested rooms.
         *  2. If so, the first available rooms (in order of input) are assigned to the reservation.
         */
-        // Store the original reservation. We need to do this because based on the dryrun tests, invoking a change command
-        // cancels the reservation, then searches through venues for rooms to fulfil the request. If it is found, request using
-        // new details. Otherwise, change cannot be fulfilled so we have to add the canceled reservation back.
-        Reservation tmpReservation = Venue.searchReservation(venues, id);
-        tmpReservation.getVenue().cancelReservation(tmpReservation);
-        // Search for the reservation id.
-        for (Venue venue : venues) {
-            
-            // See if change can be fulfilled.
-            ArrayList<Room> availableRooms = venue.getAvailableRooms(start, end, small, medium, large);
-            if (availableRooms != null) {
-                
-                // Already checked that rooms are available so this should generate
-                // a success.
-                
-                result = request(id, start, end, small, medium, large);
-                // Change can be fulfilled so cancel old reservation and
-                // request with new details
-                
-                
-                return result;
-            }
+        // Based on the dryrun tests, a change behaves as if the original reservation were cancelled before searching
+        // through venues for rooms with the new details. The cancellation is staged in a transaction, so the search
+        // already treats the original rooms as free while the venues stay untouched until the change succeeds.
+        Transaction transaction = new Transaction();
+        Reservation original = Venue.searchReservation(venues, id);
+        transaction.stageCancel(original);
+        Reservation reservation = allocate(transaction, id, start, end, small, medium, large);
+        if (reservation == null) {
+            // Change cannot be fulfilled so reject it. The original reservation was never removed.
+            transaction.rollback();
+            return outputRejected();
         }
-        // Change cannot be fulfilled so reject it. Also, make sure to add the original back in.
-        tmpReservation.getVenue().addReservation(tmpReservation);
-        return outputRejected();
+        transaction.commit();
+        publish("change", reservation);
+        return outputSuccess(reservation);
     }
 
     /**
@@ -191,7 +250,7 @@ public class VenueHireSystem {
         
         JSONArray list = new JSONArray();
         // Spec states that there will be no invalid inputs
-        Venue resultVenue = Venue.searchVenue(venues, venue);
+        Venue resultVenue = venuesByName.get(venue);
         // Find reservations through each room
         for (Room room : resultVenue.getRooms()) {
             
@@ -203,6 +262,49 @@ public class VenueHireSystem {
         return list;
     }
 
+    /**
+     * Reports the percentage of booked rooms of each size in a venue for every day in a period.
+     * The figures come from the venue's per-day counters, so no reservations are scanned.
+     * @param venue The venue as a String to generate a report for.
+     * @param start First day of the report (inclusive).
+     * @param end Last day of the report (inclusive).
+     * @return A JSONArray containing one JSONObject per day.
+     */
+    public JSONArray utilisation(String venue, LocalDate start, LocalDate end) {
+        JSONArray report = new JSONArray();
+        // Spec states that there will be no invalid inputs
+        Venue resultVenue = venuesByName.get(venue);
+        String[] sizes = {"small", "medium", "large"};
+        // Room counts do not change over the period so only count them once.
+        int[] capacity = new int[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            capacity[i] = resultVenue.countRooms(sizes[i]);
+        }
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+            JSONObject day = new JSONObject();
+            day.put("date", date.toString());
+            for (int i = 0; i < sizes.length; i++) {
+                int booked = resultVenue.getOccupancy().getBooked(sizes[i], date);
+                day.put(sizes[i], percentage(booked, capacity[i]));
+            }
+            report.put(day);
+        }
+        return report;
+    }
+
+    /**
+     * Calculates a percentage rounded to two decimal places.
+     * @param booked Number of booked rooms.
+     * @param capacity Total number of rooms. A venue without rooms of a size is reported as 0% utilised.
+     * @return The percentage of booked rooms.
+     */
+    private double percentage(int booked, int capacity) {
+        if (capacity == 0) {
+            return 0;
+        }
+        return Math.round(booked * 10000.0 / capacity) / 100.0;
+    }
+
     /**
      * Cancel a reservation by specified id.
      * @param id Unique id of the reservation to cancel
@@ -214,10 +316,27 @@ public class VenueHireSystem {
             if (reservation != null) {
                 // Reservation found, cancel it.
                 venue.cancelReservation(reservation);
+                publish("cancel", reservation);
             }
         }
         
     }
+    /**
+     * Sends an event describing a committed reservation mutation to every listener.
+     * Events are numbered in the order the mutations were committed.
+     * @param type The kind of mutation: request, change or cancel.
+     * @param reservation The reservation that was made, changed to, or cancelled.
+     */
+    private void publish(String type, Reservation reservation) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        ReservationEvent event = new ReservationEvent(++sequence, type, reservation);
+        for (ReservationListener listener : listeners) {
+            listener.onEvent(event);
+        }
+    }
+
     /**
      * Creates a JSONObject to display a rejected message for a failed request or change
      * @return A JSONObject containing the rejected message
@@ -281,19 +400,92 @@ public class VenueHireSystem {
         return result;
     }
 
+    /**
+     * Creates an allocation policy from its name.
+     * @param name One of first-fit, best-fit or packed.
+     * @return The matching AllocationPolicy.
+     */
+    public static AllocationPolicy createPolicy(String name) {
+        switch (name) {
+        case "first-fit":
+            return new FirstFitPolicy();
+        case "best-fit":
+            return new BestFitPolicy();
+        case "packed":
+            return new PackedPolicy();
+        default:
+            throw new IllegalArgumentException("Unknown allocation policy: " + name);
+        }
+    }
+
+    /**
+     * Getter method to retrieve the value following a command line option.
+     * @param args The command line arguments.
+     * @param i The index of the option.
+     * @return The argument after the option.
+     * @throws IllegalArgumentException If the option is the last argument.
+     */
+    private static String optionValue(String[] args, int i) {
+        if (i + 1 >= args.length) {
+            throw new IllegalArgumentException("Missing value for option: " + args[i]);
+        }
+        return args[i + 1];
+    }
+
     public static void main(String[] args) {
-        VenueHireSystem system = new VenueHireSystem();
+        AllocationPolicy policy = new FirstFitPolicy();
+        boolean async = false;
+        String eventDirectory = null;
+        long eventFileSize = 64 * 1024 * 1024;
+        int eventBatch = 256;
+        // Optional arguments. Without any, the system behaves exactly as the spec describes.
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "--policy":
+                policy = createPolicy(optionValue(args, i++));
+                break;
+            case "--async":
+                async = true;
+                break;
+            case "--events":
+                eventDirectory = optionValue(args, i++);
+                break;
+            case "--events-file-size":
+                eventFileSize = Long.parseLong(optionValue(args, i++));
+                break;
+            case "--events-batch":
+                eventBatch = Integer.parseInt(optionValue(args, i++));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        VenueHireSystem system = new VenueHireSystem(policy);
+        if (eventDirectory != null) {
+            EventFileSink sink = new EventFileSink(eventDirectory, eventFileSize, eventBatch, 1000);
+            system.subscribe(sink);
+            // Write out events still waiting in the current batch however the process ends, including on SIGTERM.
+            Runtime.getRuntime().addShutdownHook(new Thread(sink::close, "event-sink-shutdown"));
+        }
 
-        Scanner sc = new Scanner(System.in);
+        if (async) {
+            // Read, process and print on separate threads so slow output does not stall processing.
+            new CommandPipeline(system, 1024).run(System.in, System.out);
+        } else {
+            Scanner sc = new Scanner(System.in);
 
-        while (sc.hasNextLine()) {
-            String line = sc.nextLine();
-            if (!line.trim().equals("")) {
-                JSONObject command = new JSONObject(line);
-                system.processCommand(command);
+            while (sc.hasNextLine()) {
+                String line = sc.nextLine();
+                if (!line.trim().equals("")) {
+                    JSONObject command = new JSONObject(line);
+                    String output = system.processCommand(command);
+                    if (output != null) {
+                        System.out.println(output);
+                    }
+                }
             }
+            sc.close();
         }
-        sc.close();
     }
 
-}
+}
\ No newline at end of file